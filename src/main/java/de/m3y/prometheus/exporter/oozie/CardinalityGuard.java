@@ -0,0 +1,103 @@
+package de.m3y.prometheus.exporter.oozie;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+
+/**
+ * Bounds the series of a gauge metric family.
+ * <p>
+ * Oozie instrumentation keys contain dynamic names (eg per action or command), so series are
+ * limited to a max count per family, and series not updated for a number of polls get removed.
+ */
+class CardinalityGuard {
+    private static final Counter SERIES_DROPPED = Counter.build()
+            .name("oozie_series_dropped_total")
+            .help("Series not exported due to max series per metric family exceeded, each counted once while being updated")
+            .labelNames("family")
+            .register();
+    private static final Counter SERIES_EVICTED = Counter.build()
+            .name("oozie_series_evicted_total")
+            .help("Series removed due to not being updated for configured number of polls")
+            .labelNames("family")
+            .register();
+    private static final Gauge SERIES = Gauge.build()
+            .name("oozie_series")
+            .help("Current number of series per metric family")
+            .labelNames("family")
+            .register();
+
+    /** Sink for values of dropped series, never exported */
+    private static final Gauge.Child DROPPED_CHILD = new Gauge.Child();
+
+    private final Gauge gauge;
+    private final String family;
+    private final int maxSeries;
+    private final int ttlPolls;
+    /** Poll count when series (label values) was last updated */
+    private final Map<List<String>, Long> lastSeen = new HashMap<>();
+    /** Poll count when dropped series was last updated, bounded by max series, for counting drops once */
+    private final Map<List<String>, Long> droppedLastSeen = new HashMap<>();
+    private long poll;
+
+    /**
+     * @param gauge     the guarded gauge
+     * @param maxSeries the max number of series for this gauge
+     * @param ttlPolls  the number of polls after which a not updated series gets removed
+     */
+    CardinalityGuard(Gauge gauge, int maxSeries, int ttlPolls) {
+        this.gauge = gauge;
+        this.family = gauge.describe().get(0).name;
+        this.maxSeries = maxSeries;
+        this.ttlPolls = ttlPolls;
+    }
+
+    /**
+     * Gets the series child for given label values.
+     *
+     * @param labelValues the label values
+     * @return the child, or a detached child if max series exceeded.
+     */
+    synchronized Gauge.Child labels(String... labelValues) {
+        final List<String> key = Arrays.asList(labelValues);
+        if (null == lastSeen.put(key, poll) && lastSeen.size() > maxSeries) {
+            lastSeen.remove(key);
+            if (null == droppedLastSeen.put(key, poll)) {
+                SERIES_DROPPED.labels(family).inc();
+                if (droppedLastSeen.size() > maxSeries) {
+                    droppedLastSeen.remove(key);
+                }
+            }
+            return DROPPED_CHILD;
+        }
+        droppedLastSeen.remove(key);
+        return gauge.labels(labelValues);
+    }
+
+    synchronized int size() {
+        return lastSeen.size();
+    }
+
+    /**
+     * Marks the end of a poll, and removes series and dropped series not updated for the last ttl polls.
+     */
+    synchronized void endPoll() {
+        final Iterator<Map.Entry<List<String>, Long>> iterator = lastSeen.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<List<String>, Long> entry = iterator.next();
+            if (poll - entry.getValue() >= ttlPolls) {
+                gauge.remove(entry.getKey().toArray(new String[0]));
+                iterator.remove();
+                SERIES_EVICTED.labels(family).inc();
+            }
+        }
+        droppedLastSeen.values().removeIf(lastPoll -> poll - lastPoll >= ttlPolls);
+        SERIES.labels(family).set(lastSeen.size());
+        poll++;
+    }
+}
@@ -10,6 +10,20 @@ public class Config {
     public String listenerHost;
     public String oozieUser;
     public String ooziePassword;
+    public boolean slaEnabled;
+    public int slaLookbackHours = 24;
+    public int slaMaxRecords = 10000;
+    public int seriesMaxPerFamily = 10000;
+    public int seriesTtlPolls = 10;
+    public int scrapeTraceSize = 20;
+    public boolean webLightweight;
+    public int webWorkers = 2;
+    public int webTimeoutSeconds = 30;
+    public int webKeepAliveSeconds = 30;
+    public String recordDirectory;
+    public int recordMaxSegments = 16;
+    public String replayDirectory;
+    public double replaySpeed = 1;
 
     public boolean hasOozieAuthentication() {
         return null!=oozieUser && oozieUser.length()>0;
@@ -20,11 +20,17 @@ public class HomePageServlet extends HttpServlet {
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setContentType("text/html");
+        resp.getWriter().print(toHtml());
+    }
+
+    String toHtml() {
         StringBuilder buf = new StringBuilder().append("<html>\n"
                 + "<head><title>Apache Oozie Exporter</title></head>\n"
                 + "<body>\n"
                 + "<h1>Apache Oozie Exporter</h1>\n"
                 + "<p><a href=\"/metrics\">Metrics</a></p>\n"
+                + "<p><a href=\"/debug/scrapes\">Scrapes</a></p>\n"
                 + "<h2>Build info</h2>"
                 + "<ul>"
                 + "<li>App version: ").append(buildInfoExporter.getAppVersion()).append("</li>"
@@ -39,7 +45,6 @@ public class HomePageServlet extends HttpServlet {
         buf.append(
                 "</ul></body>\n"
                         + "</html>");
-        resp.setContentType("text/html");
-        resp.getWriter().print(buf);
+        return buf.toString();
     }
 }
\ No newline at end of file
@@ -0,0 +1,233 @@
+package de.m3y.prometheus.exporter.oozie;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves metrics and pages via the JDK NIO based HTTP server, as lightweight alternative to Jetty.
+ * <p>
+ * Uses a strictly bounded number of worker threads. Requests exceeding the workers are answered
+ * with 503 by a separate reject thread, without doing any work. Exchange I/O never runs on the accepting thread,
+ * so slow or partial requests can not stall other connections. When the reject queue is full too,
+ * the connection gets closed right away.
+ * Request/response timeouts and keep-alive idle interval are configured via the JDK HTTP server system properties,
+ * unless already set.
+ */
+class LightweightWebServer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LightweightWebServer.class);
+
+    /** Marks requests to reject, as all workers are busy */
+    private static final ThreadLocal<Boolean> REJECTING = new ThreadLocal<>();
+    /** Releases the worker permit of current request */
+    private static final ThreadLocal<Runnable> RELEASE_PERMIT = new ThreadLocal<>();
+    /** Max rejected requests waiting for the reject thread */
+    private static final int REJECT_QUEUE_SIZE = 16;
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor rejectExecutor;
+    private final Semaphore permits;
+    private final Map<String, Supplier<String>> pages = new ConcurrentHashMap<>();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    LightweightWebServer(InetSocketAddress address, Config config) throws IOException {
+        setDefaultProperty("sun.net.httpserver.maxReqTime", Integer.toString(config.webTimeoutSeconds));
+        setDefaultProperty("sun.net.httpserver.maxRspTime", Integer.toString(config.webTimeoutSeconds));
+        setDefaultProperty("sun.net.httpserver.idleInterval", Integer.toString(config.webKeepAliveSeconds));
+        // Avoids Nagle delaying responses written as separate header and body chunks
+        setDefaultProperty("sun.net.httpserver.nodelay", "true");
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "oozie-exporter-web-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        // Queue holds few tasks only, as guarded by permits
+        executor = new ThreadPoolExecutor(config.webWorkers, config.webWorkers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        permits = new Semaphore(config.webWorkers);
+        rejectExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(REJECT_QUEUE_SIZE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "oozie-exporter-web-reject");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        server = HttpServer.create(address, 0);
+        server.setExecutor(this::execute);
+        server.createContext("/", this::handle);
+    }
+
+    private void execute(Runnable exchange) {
+        if (permits.tryAcquire()) {
+            final AtomicBoolean released = new AtomicBoolean();
+            final Runnable releasePermit = () -> {
+                if (released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            };
+            executor.execute(() -> {
+                RELEASE_PERMIT.set(releasePermit);
+                try {
+                    exchange.run();
+                } finally {
+                    RELEASE_PERMIT.remove();
+                    releasePermit.run();
+                }
+            });
+        } else {
+            try {
+                rejectExecutor.execute(() -> {
+                    REJECTING.set(Boolean.TRUE);
+                    try {
+                        exchange.run();
+                    } finally {
+                        REJECTING.remove();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // JDK HTTP server closes the connection on IOException, for all supported Java versions
+                throwUnchecked(new IOException("All workers and reject queue busy", e));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Exception> void throwUnchecked(Exception e) throws E {
+        throw (E) e;
+    }
+
+    private static void setDefaultProperty(String name, String value) {
+        if (null == System.getProperty(name)) {
+            System.setProperty(name, value);
+        }
+    }
+
+    /**
+     * Adds a HTML page.
+     *
+     * @param path the exact request path
+     * @param html the page content supplier
+     */
+    void addPage(String path, Supplier<String> html) {
+        pages.put(path, html);
+    }
+
+    void start() {
+        server.start();
+        LOGGER.info("Started lightweight web server on {} with {} workers", server.getAddress(), executor.getMaximumPoolSize());
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+        rejectExecutor.shutdownNow();
+        stopped.countDown();
+    }
+
+    /**
+     * Waits until server is stopped.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    void join() throws InterruptedException {
+        stopped.await();
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            final String path = exchange.getRequestURI().getPath();
+            final String method = exchange.getRequestMethod();
+            if (Boolean.TRUE.equals(REJECTING.get())) {
+                sendResponse(exchange, 503, "text/plain", new byte[0]);
+            } else if ("/metrics".equals(path)
+                    && ("GET".equals(method) || "HEAD".equals(method) || "POST".equals(method))) {
+                // Same as MetricsServlet: supports filtering by name[] query parameters
+                ByteArrayOutputStream buf = new ByteArrayOutputStream();
+                try (Writer writer = new OutputStreamWriter(buf, StandardCharsets.UTF_8)) {
+                    TextFormat.write004(writer, CollectorRegistry.defaultRegistry.filteredMetricFamilySamples(
+                            parseNames(exchange.getRequestURI().getRawQuery())));
+                }
+                sendResponse(exchange, 200, TextFormat.CONTENT_TYPE_004, buf.toByteArray());
+            } else if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                sendResponse(exchange, 405, "text/plain", new byte[0]);
+            } else {
+                // Same as Jetty "/" mapping: unknown paths get the home page
+                final Supplier<String> page = pages.getOrDefault(path, pages.get("/"));
+                if (null == page) {
+                    sendResponse(exchange, 404, "text/plain", new byte[0]);
+                } else {
+                    sendResponse(exchange, 200, "text/html", page.get().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    static Set<String> parseNames(String rawQuery) throws UnsupportedEncodingException {
+        final Set<String> names = new HashSet<>();
+        if (null != rawQuery) {
+            for (String param : rawQuery.split("&")) {
+                final int idx = param.indexOf('=');
+                if (idx > 0 && "name[]".equals(URLDecoder.decode(param.substring(0, idx), "UTF-8"))) {
+                    names.add(URLDecoder.decode(param.substring(idx + 1), "UTF-8"));
+                }
+            }
+        }
+        return names;
+    }
+
+    private static void sendResponse(HttpExchange exchange, int status, String contentType, byte[] body)
+            throws IOException {
+        // Response is computed, so release permit before client can see the response and send next request
+        final Runnable releasePermit = RELEASE_PERMIT.get();
+        if (null != releasePermit) {
+            releasePermit.run();
+        }
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        if ("HEAD".equals(exchange.getRequestMethod()) || body.length == 0) {
+            exchange.sendResponseHeaders(status, -1);
+        } else {
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        }
+    }
+}
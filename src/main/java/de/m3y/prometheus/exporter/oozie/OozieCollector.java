@@ -1,14 +1,27 @@
 package de.m3y.prometheus.exporter.oozie;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.X509Certificate;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
@@ -16,11 +29,14 @@ import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 
 import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
 import io.prometheus.client.Counter;
 import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
 import okhttp3.*;
 import org.apache.oozie.client.OozieClient;
 import org.apache.oozie.client.OozieClient.Metrics;
+import org.apache.oozie.client.rest.JsonTags;
 import org.apache.oozie.client.rest.RestConstants;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -73,18 +89,48 @@ public class OozieCollector extends Collector {
         final OkHttpClient httpClient;
         final Request request;
         final String apiLabel;
-
-        protected AbstractOozieCollector(String apiLabel, OkHttpClient httpClient, Request request) {
+        final Config config;
+        final List<CardinalityGuard> cardinalityGuards = new ArrayList<>();
+        final ScrapeTraceBuffer scrapeTraces;
+        /** Trace of the scrape in progress by current thread */
+        private final ThreadLocal<ScrapeTraceBuffer.ScrapeTrace> currentTrace = new ThreadLocal<>();
+        /** Optional, for recording API payloads */
+        PayloadRecorder payloadRecorder;
+        /** Optional, replays recorded API payloads instead of invoking Oozie API */
+        PayloadReplayer payloadReplayer;
+
+        protected AbstractOozieCollector(String apiLabel, OkHttpClient httpClient, Request request, Config config) {
             this.httpClient = httpClient;
             this.request = request;
             this.apiLabel = apiLabel;
+            this.config = config;
+            scrapeTraces = new ScrapeTraceBuffer(config.scrapeTraceSize);
         }
 
         JSONObject parseJsonObject(Request apiRequest) {
+            final ScrapeTraceBuffer.ScrapeTrace trace = currentTrace.get();
             try {
-                Response response = httpClient.newCall(apiRequest).execute();
-                String body = response.body().string();
-                return (JSONObject) JSONValue.parse(body);
+                byte[] body;
+                if (null != payloadReplayer) {
+                    body = payloadReplayer.next(apiLabel);
+                } else {
+                    Response response = httpClient.newCall(apiRequest).execute();
+                    if (null != trace) {
+                        trace.responseReceived(response.code());
+                    }
+                    body = response.body().bytes();
+                }
+                if (null != trace) {
+                    trace.bodyRead(body.length);
+                }
+                if (null != payloadRecorder) {
+                    payloadRecorder.record(apiLabel, body);
+                }
+                final JSONObject json = (JSONObject) JSONValue.parse(new String(body, StandardCharsets.UTF_8));
+                if (null != trace) {
+                    trace.parsed();
+                }
+                return json;
             } catch (IOException | NullPointerException e) {
                 throw new IllegalStateException("Can not invoke/parse call to " + apiRequest.url(), e);
             }
@@ -92,19 +138,50 @@ public class OozieCollector extends Collector {
 
         @Override
         public List<MetricFamilySamples> collect() {
+            final ScrapeTraceBuffer.ScrapeTrace trace = new ScrapeTraceBuffer.ScrapeTrace();
+            currentTrace.set(trace);
             try (Gauge.Timer timer = METRIC_SCRAPE_DURATION.labels(apiLabel).startTimer()) {
                 METRIC_SCRAPE_REQUESTS.labels(apiLabel).inc();
                 scrape();
+                for (CardinalityGuard cardinalityGuard : cardinalityGuards) {
+                    cardinalityGuard.endPoll();
+                }
+                trace.end(getSeriesCount());
             } catch (Exception e) {
                 METRIC_SCRAPE_ERROR.labels(apiLabel).inc();
+                trace.failed(e);
                 LOGGER.error("Scrape failed", e);
+            } finally {
+                currentTrace.remove();
+                scrapeTraces.add(trace);
             }
             return Collections.emptyList();
         }
 
         protected abstract void scrape();
 
+        /**
+         * @return the number of series currently exported by this collector.
+         */
+        int getSeriesCount() {
+            int count = 0;
+            for (CardinalityGuard cardinalityGuard : cardinalityGuards) {
+                count += cardinalityGuard.size();
+            }
+            return count;
+        }
+
+        CardinalityGuard guard(Gauge gauge) {
+            final CardinalityGuard cardinalityGuard =
+                    new CardinalityGuard(gauge, config.seriesMaxPerFamily, config.seriesTtlPolls);
+            cardinalityGuards.add(cardinalityGuard);
+            return cardinalityGuard;
+        }
+
         boolean isAvailable() {
+            if (null != payloadReplayer) {
+                return payloadReplayer.hasPayloads(apiLabel);
+            }
             try {
                 final Response response = httpClient.newCall(request).execute();
                 LOGGER.info("Checking availability of {} : {}", request.url(), response.code());
@@ -117,7 +194,7 @@ public class OozieCollector extends Collector {
             }
         }
 
-        static void updateGauges(Gauge gauge, Map<String, ?> gauges, String group) {
+        static void updateGauges(CardinalityGuard gauge, Map<String, ?> gauges, String group) {
             for (Entry<String, ?> gaugeEntry : gauges.entrySet()) {
                 final Object value = gaugeEntry.getValue();
                 if (value instanceof Number) {
@@ -140,7 +217,7 @@ public class OozieCollector extends Collector {
         }
 
         // TODO: should be counter instead of gauge, but counter can not set() value
-        static void updateCounters(Gauge gauge, Map<String, Long> counters) {
+        static void updateCounters(CardinalityGuard gauge, Map<String, Long> counters) {
             for (Entry<String, Long> counterEntry : counters.entrySet()) {
                 // Example : jpa.GET_RUNNING_ACTIONS
                 final String key = counterEntry.getKey();
@@ -188,20 +265,32 @@ public class OozieCollector extends Collector {
                 .help("Oozie counters")
                 .labelNames("counter_type", "counter_name").register();
 
+        private final CardinalityGuard timerOwn;
+        private final CardinalityGuard timerTotal;
+        private final CardinalityGuard timerTicks;
+        private final CardinalityGuard variables;
+        private final CardinalityGuard counter;
+
         OozieAdminInstrumentationCollector(OkHttpClient httpClient, Config config) {
             super(ADMIN_INSTRUMENTATION,
                     httpClient,
                     new Request.Builder()
                             .url(config.oozieApiUrl + '/' + RestConstants.ADMIN + '/' + RestConstants.ADMIN_INSTRUMENTATION_RESOURCE)
-                            .build());
+                            .build(),
+                    config);
+            timerOwn = guard(INSTRUMENTATION_TIMER_OWN);
+            timerTotal = guard(INSTRUMENTATION_TIMER_TOTAL);
+            timerTicks = guard(INSTRUMENTATION_TIMER_TICKS);
+            variables = guard(INSTRUMENTATION_VARIABLES);
+            counter = guard(INSTRUMENTATION_COUNTER);
         }
 
         @Override
         public void scrape() {
             final OozieClient.Instrumentation instrumentation = getInstrumentation();
-            updateCounters(INSTRUMENTATION_COUNTER, instrumentation.getCounters());
-            updateGauges(INSTRUMENTATION_VARIABLES, instrumentation.getSamplers(), "samplers");
-            updateGauges(INSTRUMENTATION_VARIABLES, instrumentation.getVariables(), "variables");
+            updateCounters(counter, instrumentation.getCounters());
+            updateGauges(variables, instrumentation.getSamplers(), "samplers");
+            updateGauges(variables, instrumentation.getVariables(), "variables");
             addInstrumentationTimers(instrumentation.getTimers());
         }
 
@@ -221,18 +310,18 @@ public class OozieCollector extends Collector {
                 if (idx > 0) {
                     String timerType = key.substring(0, idx);
                     String timerName = key.substring(idx + 1);
-                    INSTRUMENTATION_TIMER_TOTAL.labels(timerType, timerName, "std_dev")
+                    timerTotal.labels(timerType, timerName, "std_dev")
                             .set(value.getTotalTimeStandardDeviation() / 1000d /* Convert ms to seconds */);
-                    INSTRUMENTATION_TIMER_TOTAL.labels(timerType, timerName, "avg").set(value.getTotalTimeAverage() / 1000d);
-                    INSTRUMENTATION_TIMER_TOTAL.labels(timerType, timerName, "min").set(value.getTotalMinTime() / 1000d);
-                    INSTRUMENTATION_TIMER_TOTAL.labels(timerType, timerName, "max").set(value.getTotalMaxTime() / 1000d);
+                    timerTotal.labels(timerType, timerName, "avg").set(value.getTotalTimeAverage() / 1000d);
+                    timerTotal.labels(timerType, timerName, "min").set(value.getTotalMinTime() / 1000d);
+                    timerTotal.labels(timerType, timerName, "max").set(value.getTotalMaxTime() / 1000d);
 
-                    INSTRUMENTATION_TIMER_OWN.labels(timerType, timerName, "std_dev").set(value.getOwnTimeStandardDeviation() / 1000d);
-                    INSTRUMENTATION_TIMER_OWN.labels(timerType, timerName, "avg").set(value.getOwnTimeAverage() / 1000d);
-                    INSTRUMENTATION_TIMER_OWN.labels(timerType, timerName, "min").set(value.getOwnMinTime() / 1000d);
-                    INSTRUMENTATION_TIMER_OWN.labels(timerType, timerName, "max").set(value.getOwnMaxTime() / 1000d);
+                    timerOwn.labels(timerType, timerName, "std_dev").set(value.getOwnTimeStandardDeviation() / 1000d);
+                    timerOwn.labels(timerType, timerName, "avg").set(value.getOwnTimeAverage() / 1000d);
+                    timerOwn.labels(timerType, timerName, "min").set(value.getOwnMinTime() / 1000d);
+                    timerOwn.labels(timerType, timerName, "max").set(value.getOwnMaxTime() / 1000d);
 
-                    INSTRUMENTATION_TIMER_TICKS.labels(timerType, timerName).set(value.getTicks());
+                    timerTicks.labels(timerType, timerName).set(value.getTicks());
                 } else {
                     LOGGER.warn("Not supported : oozie instrumentation timer without timer type part in key " + key);
                 }
@@ -295,24 +384,32 @@ public class OozieCollector extends Collector {
                 .help("Oozie timers")
                 .labelNames("timer_group", "timer_name", "timer_type").register();
 
+        private final CardinalityGuard variables;
+        private final CardinalityGuard counter;
+        private final CardinalityGuard timer;
+
         OozieAdminMetricsCollector(OkHttpClient httpClient, Config config) {
             super(ADMIN_METRICS,
                     httpClient,
                     new Request.Builder()
                             .url(config.oozieApiUrl + '/' + RestConstants.ADMIN + '/' + RestConstants.ADMIN_METRICS_RESOURCE)
-                            .build());
+                            .build(),
+                    config);
+            variables = guard(METRICS_VARIABLES);
+            counter = guard(METRICS_COUNTER);
+            timer = guard(METRICS_TIMER);
         }
 
         @Override
         public void scrape() {
             final Metrics metrics = getMetrics();
-            updateCounters(METRICS_COUNTER, metrics.getCounters());
-            updateGauges(METRICS_VARIABLES, metrics.getGauges(), "gauges");
+            updateCounters(counter, metrics.getCounters());
+            updateGauges(variables, metrics.getGauges(), "gauges");
             //                metrics.getHistograms() TODO!
-            updateTimers(METRICS_TIMER, metrics.getTimers());
+            updateTimers(timer, metrics.getTimers());
         }
 
-        private void updateTimers(Gauge timer, Map<String, Metrics.Timer> timers) {
+        private void updateTimers(CardinalityGuard timer, Map<String, Metrics.Timer> timers) {
             for (Entry<String, ?> timerEntry : timers.entrySet()) {
                 final Object value = timerEntry.getValue();
                 if (value instanceof OozieClient.Metrics.Timer) {
@@ -326,7 +423,7 @@ public class OozieCollector extends Collector {
             }
         }
 
-        private void updateTimer(Gauge gauge, String timerKey, Metrics.Timer timer) {
+        private void updateTimer(CardinalityGuard gauge, String timerKey, Metrics.Timer timer) {
             int idx = timerKey.indexOf('.');
             if (idx > 0) {
                 String varType = timerKey.substring(0, idx);
@@ -374,7 +471,326 @@ public class OozieCollector extends Collector {
         }
     }
 
+    /**
+     * Collects SLA summaries via http://oozie.apache.org/docs/4.2.0/WebServicesAPI.html#Job_Information (v2/sla).
+     * <p>
+     * Polls incrementally: only SLA records with a nominal time inside the lookback window are fetched,
+     * paging by nominal time when exceeding max records per response.
+     * Records older than the oldest unfinished record and the newest record of the previous poll are already counted,
+     * so polls start at the older of both instead of refetching the whole lookback window.
+     * Finished records not modified since the last-modified watermark are skipped, with the watermark starting at
+     * exporter start so that a restart does not count already finished records again.
+     * Unfinished records are kept in a bounded index, finished records are counted once and dropped.
+     * <p>
+     * Note: Oozie 4.2 has no server side filter on last modified, so the window is bounded by nominal time.
+     */
+    static class OozieSlaCollector extends AbstractOozieCollector {
+        private static final String SLA = "sla";
+        private static final String SLA_PREFIX = METRIC_PREFIX + SLA + "_";
+        private static final double[] LAG_BUCKETS = {60, 300, 900, 1800, 3600, 7200, 14400, 43200, 86400};
+
+        private static final Gauge SLA_ACTIVE = Gauge.build()
+                .name(SLA_PREFIX + "active")
+                .help("Unfinished SLA records, by app and SLA status (NOT_STARTED, IN_PROCESS, MISS)")
+                .labelNames("app_name", "sla_status")
+                .register();
+        private static final Counter SLA_FINISHED = Counter.build()
+                .name(SLA_PREFIX + "finished_total")
+                .help("Finished SLA records, by app and SLA status (MET, MISS)")
+                .labelNames("app_name", "sla_status")
+                .register();
+        private static final Histogram SLA_START_MISS_LAG = Histogram.build()
+                .name(SLA_PREFIX + "start_miss_lag_seconds")
+                .help("Lag of actual start after expected start, for SLA start misses")
+                .labelNames("app_name")
+                .buckets(LAG_BUCKETS)
+                .register();
+        private static final Histogram SLA_END_MISS_LAG = Histogram.build()
+                .name(SLA_PREFIX + "end_miss_lag_seconds")
+                .help("Lag of actual end after expected end, for SLA end misses")
+                .labelNames("app_name")
+                .buckets(LAG_BUCKETS)
+                .register();
+        private static final Histogram SLA_DURATION_MISS_LAG = Histogram.build()
+                .name(SLA_PREFIX + "duration_miss_lag_seconds")
+                .help("Excess of actual duration over expected duration, for SLA duration misses")
+                .labelNames("app_name")
+                .buckets(LAG_BUCKETS)
+                .register();
+        private static final Counter SLA_EVICTED = Counter.build()
+                .name(SLA_PREFIX + "index_evicted_total")
+                .help("Unfinished SLA records evicted from the index before finishing, "
+                        + "due to exceeding max records or lookback")
+                .register();
+
+        static class SlaRecord {
+            final String appName;
+            final String slaStatus;
+            final long nominalTime;
+            final long lastModified;
+
+            SlaRecord(String appName, String slaStatus, long nominalTime, long lastModified) {
+                this.appName = appName;
+                this.slaStatus = slaStatus;
+                this.nominalTime = nominalTime;
+                this.lastModified = lastModified;
+            }
+        }
+
+        private final String slaApiUrl;
+        private final long lookbackMillis;
+        private final int maxRecords;
+        /** Unfinished SLA records by id */
+        private final Map<String, SlaRecord> activeRecords = new HashMap<>();
+        private long lastModifiedWatermark;
+        /** Max nominal time seen by previous polls, or -1 if none */
+        private long newestNominalTime = -1;
+        /** Label sets of SLA metric families updated by this collector, as family name plus label values */
+        private final Set<List<String>> seriesLabels = new HashSet<>();
+        /** Unfinished records with nominal time up to here got evicted for exceeding max records, and are not re-added */
+        private long evictedNominalTime = -1;
+
+        /**
+         * @param startTime the initial last-modified watermark, records finished before are not counted.
+         */
+        OozieSlaCollector(OkHttpClient httpClient, Config config, long startTime) {
+            super(SLA,
+                    httpClient,
+                    createRequest(config.oozieApiUrl + "/v2/" + RestConstants.SLA, System.currentTimeMillis(), 1),
+                    config);
+            slaApiUrl = config.oozieApiUrl + "/v2/" + RestConstants.SLA;
+            lookbackMillis = TimeUnit.HOURS.toMillis(config.slaLookbackHours);
+            maxRecords = config.slaMaxRecords;
+            lastModifiedWatermark = startTime;
+        }
+
+        static SimpleDateFormat createFilterDateFormat() {
+            SimpleDateFormat filterDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm'Z'", Locale.US);
+            filterDateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+            return filterDateFormat;
+        }
+
+        static Request createRequest(String url, long nominalStart, int len) {
+            HttpUrl httpUrl = HttpUrl.get(url).newBuilder()
+                    .addQueryParameter(RestConstants.JOBS_FILTER_PARAM,
+                            "nominal_start=" + createFilterDateFormat().format(new Date(nominalStart)))
+                    .addQueryParameter(RestConstants.LEN_PARAM, Integer.toString(len))
+                    .build();
+            return new Request.Builder().url(httpUrl).build();
+        }
+
+        /**
+         * Counts the label sets of SLA metric families, same as for the admin APIs.
+         */
+        @Override
+        int getSeriesCount() {
+            return seriesLabels.size();
+        }
+
+        private void addSeries(String family, String... labelValues) {
+            final List<String> labels = new ArrayList<>(labelValues.length + 1);
+            labels.add(family);
+            Collections.addAll(labels, labelValues);
+            seriesLabels.add(labels);
+        }
+
+        @Override
+        public synchronized void scrape() {
+            // Replayed records carry recording times, so replay uses recording time
+            scrape(null != payloadReplayer ? payloadReplayer.currentTime() : System.currentTimeMillis());
+        }
+
+        void scrape(long now) {
+            final long windowStart = now - lookbackMillis;
+            evictBefore(windowStart);
+
+            final long watermark = lastModifiedWatermark;
+            final Set<String> finishedIds = new HashSet<>();
+            long nominalStart = getPollStart(windowStart);
+            while (true) {
+                final JSONObject json = parseJsonObject(createRequest(slaApiUrl, nominalStart, maxRecords));
+                final JSONArray slaSummaries = (JSONArray) json.get(JsonTags.SLA_SUMMARY_LIST);
+                if (null == slaSummaries) {
+                    LOGGER.warn("No {} in SLA response", JsonTags.SLA_SUMMARY_LIST);
+                    break;
+                }
+                final long lastNominalTime = update(slaSummaries, watermark, finishedIds);
+                newestNominalTime = Math.max(newestNominalTime, lastNominalTime);
+                if (slaSummaries.size() < maxRecords) {
+                    break;
+                }
+                // Response limited to max records ordered by nominal time, so continue with next page.
+                // Filter has minute resolution, so next page overlaps by records of last minute.
+                if (TimeUnit.MILLISECONDS.toMinutes(lastNominalTime) <= TimeUnit.MILLISECONDS.toMinutes(nominalStart)) {
+                    LOGGER.warn("More than {} SLA records with nominal time {}, ignoring exceeding records",
+                            maxRecords, createFilterDateFormat().format(new Date(nominalStart)));
+                    break;
+                }
+                nominalStart = lastNominalTime;
+            }
+
+            evictExceedingMaxRecords();
+        }
+
+        /**
+         * Gets the nominal start of the next poll: the older of the oldest unfinished record and the newest record
+         * of previous polls, bounded by the lookback window.
+         *
+         * @param windowStart the start of the lookback window
+         * @return the nominal start
+         */
+        private long getPollStart(long windowStart) {
+            if (newestNominalTime < 0) {
+                return windowStart;
+            }
+            long pollStart = newestNominalTime;
+            for (SlaRecord record : activeRecords.values()) {
+                pollStart = Math.min(pollStart, record.nominalTime);
+            }
+            return Math.max(windowStart, pollStart);
+        }
+
+        /**
+         * Updates the index and counts finished records.
+         *
+         * @param slaSummaries the SLA summaries
+         * @param watermark    the last-modified watermark of previous scrape
+         * @param finishedIds  the ids of records counted as finished in current scrape
+         * @return the max nominal time of given SLA summaries
+         */
+        long update(JSONArray slaSummaries, long watermark, Set<String> finishedIds) {
+            long lastNominalTime = -1;
+            for (Object o : slaSummaries) {
+                final JSONObject slaSummary = (JSONObject) o;
+                final String id = (String) slaSummary.get(JsonTags.SLA_SUMMARY_ID);
+                final long lastModified = parseTime(slaSummary.get(JsonTags.SLA_SUMMARY_LAST_MODIFIED));
+                final long nominalTime = parseTime(slaSummary.get(JsonTags.SLA_SUMMARY_NOMINAL_TIME));
+                lastNominalTime = Math.max(lastNominalTime, nominalTime);
+                final boolean finished = parseTime(slaSummary.get(JsonTags.SLA_SUMMARY_ACTUAL_END)) >= 0;
+                final SlaRecord previous = activeRecords.get(id);
+                if (null != previous) {
+                    if (lastModified <= previous.lastModified) {
+                        continue; // Unchanged
+                    }
+                    removeActive(id);
+                } else if (finished ? lastModified <= watermark || finishedIds.contains(id)
+                        : nominalTime <= evictedNominalTime) {
+                    continue; // Already counted or finished before exporter start, or evicted
+                }
+                lastModifiedWatermark = Math.max(lastModifiedWatermark, lastModified);
+
+                final String appName = (String) slaSummary.get(JsonTags.SLA_SUMMARY_APP_NAME);
+                final String slaStatus = String.valueOf(slaSummary.get(JsonTags.SLA_SUMMARY_SLA_STATUS));
+                if (finished) {
+                    finishedIds.add(id);
+                    finish(appName, slaStatus, slaSummary);
+                } else {
+                    activeRecords.put(id, new SlaRecord(appName, slaStatus, nominalTime, lastModified));
+                    SLA_ACTIVE.labels(appName, slaStatus).inc();
+                    addSeries(SLA_PREFIX + "active", appName, slaStatus);
+                }
+            }
+            return lastNominalTime;
+        }
+
+        private void evictBefore(long windowStart) {
+            final Iterator<SlaRecord> iterator = activeRecords.values().iterator();
+            while (iterator.hasNext()) {
+                final SlaRecord record = iterator.next();
+                if (record.nominalTime < windowStart) {
+                    evict(iterator, record);
+                }
+            }
+        }
+
+        /**
+         * Evicts records with oldest nominal time, when exceeding max records.
+         */
+        private void evictExceedingMaxRecords() {
+            final int exceeding = activeRecords.size() - maxRecords;
+            if (exceeding <= 0) {
+                return;
+            }
+            final List<SlaRecord> records = new ArrayList<>(activeRecords.values());
+            records.sort(Comparator.comparingLong(record -> record.nominalTime));
+            final long maxEvictedNominalTime = records.get(exceeding - 1).nominalTime;
+            evictedNominalTime = Math.max(evictedNominalTime, maxEvictedNominalTime);
+            final Iterator<SlaRecord> iterator = activeRecords.values().iterator();
+            while (iterator.hasNext()) {
+                final SlaRecord record = iterator.next();
+                if (record.nominalTime <= maxEvictedNominalTime) {
+                    evict(iterator, record);
+                }
+            }
+        }
+
+        private static void evict(Iterator<SlaRecord> iterator, SlaRecord record) {
+            SLA_ACTIVE.labels(record.appName, record.slaStatus).dec();
+            iterator.remove();
+            SLA_EVICTED.inc();
+        }
+
+        private void removeActive(String id) {
+            final SlaRecord record = activeRecords.remove(id);
+            SLA_ACTIVE.labels(record.appName, record.slaStatus).dec();
+        }
+
+        private void finish(String appName, String slaStatus, JSONObject slaSummary) {
+            SLA_FINISHED.labels(appName, slaStatus).inc();
+            addSeries(SLA_PREFIX + "finished_total", appName, slaStatus);
+            observeLag(SLA_START_MISS_LAG, appName,
+                    parseTime(slaSummary.get(JsonTags.SLA_SUMMARY_EXPECTED_START)),
+                    parseTime(slaSummary.get(JsonTags.SLA_SUMMARY_ACTUAL_START)));
+            observeLag(SLA_END_MISS_LAG, appName,
+                    parseTime(slaSummary.get(JsonTags.SLA_SUMMARY_EXPECTED_END)),
+                    parseTime(slaSummary.get(JsonTags.SLA_SUMMARY_ACTUAL_END)));
+            observeLag(SLA_DURATION_MISS_LAG, appName,
+                    parseLong(slaSummary.get(JsonTags.SLA_SUMMARY_EXPECTED_DURATION)),
+                    parseLong(slaSummary.get(JsonTags.SLA_SUMMARY_ACTUAL_DURATION)));
+        }
+
+        private void observeLag(Histogram histogram, String appName, long expected, long actual) {
+            if (expected >= 0 && actual > expected) {
+                histogram.labels(appName).observe((actual - expected) / 1000d /* Convert ms to seconds */);
+                addSeries(histogram.describe().get(0).name, appName);
+            }
+        }
+
+        private static long parseLong(Object value) {
+            return value instanceof Number ? ((Number) value).longValue() : -1;
+        }
+
+        /**
+         * Oozie returns SLA times as epoch millis, or as RFC822 string if a timezone is requested.
+         *
+         * @param value the json value
+         * @return the time in epoch millis, or -1 if not set.
+         */
+        static long parseTime(Object value) {
+            if (value instanceof Number) {
+                return ((Number) value).longValue();
+            }
+            if (value instanceof String) {
+                SimpleDateFormat rfc822DateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+                try {
+                    return rfc822DateFormat.parse((String) value).getTime();
+                } catch (ParseException e) {
+                    LOGGER.warn("Can not parse SLA time {}", value);
+                }
+            }
+            return -1;
+        }
+    }
+
+    private final Map<String, ScrapeTraceBuffer> scrapeTraces = new LinkedHashMap<>();
+    private final List<AbstractOozieCollector> collectors = new ArrayList<>();
+    private final PayloadRecorder payloadRecorder;
+    private final PayloadReplayer payloadReplayer;
+
     OozieCollector(Config config) {
+        if (null != config.recordDirectory && null != config.replayDirectory) {
+            throw new IllegalArgumentException("Can not record while replaying");
+        }
         if (LOGGER.isInfoEnabled()) {
             LOGGER.info("Starting Oozie exporter with Oozie API base URL  " + config.oozieApiUrl);
         }
@@ -391,21 +807,33 @@ public class OozieCollector extends Collector {
         }
         OkHttpClient httpClient = builder.build();
 
-        final OozieAdminInstrumentationCollector adminInstrumentationCollector =
-                new OozieAdminInstrumentationCollector(httpClient, config);
-        if (adminInstrumentationCollector.isAvailable()) {
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Registering Oozie admin instrumentation collector");
-            }
-            adminInstrumentationCollector.register();
+        try {
+            payloadRecorder = null != config.recordDirectory ?
+                    new PayloadRecorder(config.recordDirectory, config.recordMaxSegments) : null;
+            payloadReplayer = null != config.replayDirectory ?
+                    new PayloadReplayer(config.replayDirectory, config.replaySpeed) : null;
+        } catch (IOException e) {
+            throw new IllegalStateException("Can not set up payload recording/replay", e);
+        }
+
+        registerIfAvailable(new OozieAdminInstrumentationCollector(httpClient, config));
+        registerIfAvailable(new OozieAdminMetricsCollector(httpClient, config));
+        if (config.slaEnabled) {
+            registerIfAvailable(new OozieSlaCollector(httpClient, config,
+                    null != payloadReplayer ? payloadReplayer.currentTime() : System.currentTimeMillis()));
         }
+    }
 
-        final OozieAdminMetricsCollector adminMetricsCollector = new OozieAdminMetricsCollector(httpClient, config);
-        if (adminMetricsCollector.isAvailable()) {
+    private void registerIfAvailable(AbstractOozieCollector collector) {
+        collector.payloadRecorder = payloadRecorder;
+        collector.payloadReplayer = payloadReplayer;
+        if (collector.isAvailable()) {
             if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Registering Oozie admin metrics collector");
+                LOGGER.debug("Registering Oozie {} collector", collector.apiLabel);
             }
-            adminMetricsCollector.register();
+            collector.register();
+            collectors.add(collector);
+            scrapeTraces.put(collector.apiLabel, collector.scrapeTraces);
         }
     }
 
@@ -438,6 +866,23 @@ public class OozieCollector extends Collector {
         }
     }
 
+    /**
+     * Unregisters the collectors of the Oozie APIs.
+     */
+    void unregister() {
+        for (AbstractOozieCollector collector : collectors) {
+            CollectorRegistry.defaultRegistry.unregister(collector);
+        }
+        collectors.clear();
+    }
+
+    /**
+     * @return the scrape traces by Oozie API label, for registered collectors.
+     */
+    Map<String, ScrapeTraceBuffer> getScrapeTraces() {
+        return scrapeTraces;
+    }
+
     public List<MetricFamilySamples> collect() {
         // Already registered specific collectors.
         return Collections.emptyList();
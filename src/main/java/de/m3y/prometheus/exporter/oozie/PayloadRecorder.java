@@ -0,0 +1,164 @@
+package de.m3y.prometheus.exporter.oozie;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records raw Oozie API payloads, for replaying via {@link PayloadReplayer}.
+ * <p>
+ * Payloads get deflate compressed and appended to segment files in the recording directory, rolling over to a new
+ * segment when exceeding the max segment size and deleting the oldest segments exceeding max segments.
+ * Segment format:
+ * <pre>
+ * segment := MAGIC(int) VERSION(int) record*
+ * record  := timestamp(long, epoch millis) labelLength(int) label(UTF-8)
+ *            payloadLength(int) compressedLength(int) compressedPayload
+ * </pre>
+ * Recording is a debugging aid, so on failure recording gets disabled instead of failing the scrape.
+ */
+class PayloadRecorder {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PayloadRecorder.class);
+
+    static final int MAGIC = 0x4f5a5250; // "OZRP"
+    static final int VERSION = 2;
+    static final Pattern SEGMENT_FILE_PATTERN = Pattern.compile("segment-(\\d+)\\.dat");
+    private static final long MAX_SEGMENT_BYTES = 16L * 1024 * 1024;
+
+    private final Path directory;
+    private final int maxSegments;
+    private final LongSupplier clock;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private FileChannel segment;
+    private int segmentIndex;
+    private boolean disabled;
+
+    /**
+     * @param directory   the recording directory
+     * @param maxSegments the max number of segments to keep
+     * @throws IOException on error accessing recording directory
+     */
+    PayloadRecorder(String directory, int maxSegments) throws IOException {
+        this(directory, maxSegments, System::currentTimeMillis);
+    }
+
+    PayloadRecorder(String directory, int maxSegments, LongSupplier clock) throws IOException {
+        this.directory = Paths.get(directory);
+        this.maxSegments = maxSegments;
+        this.clock = clock;
+        Files.createDirectories(this.directory);
+        // Continue after existing segments
+        for (int index : getSegmentIndices()) {
+            segmentIndex = Math.max(segmentIndex, index + 1);
+        }
+        LOGGER.info("Recording Oozie API payloads to {}", this.directory);
+    }
+
+    static String getSegmentFileName(int index) {
+        return String.format("segment-%06d.dat", index);
+    }
+
+    private int[] getSegmentIndices() {
+        final File[] files = directory.toFile().listFiles();
+        if (null == files) {
+            return new int[0];
+        }
+        return Arrays.stream(files)
+                .map(file -> SEGMENT_FILE_PATTERN.matcher(file.getName()))
+                .filter(Matcher::matches)
+                .mapToInt(matcher -> Integer.parseInt(matcher.group(1)))
+                .sorted()
+                .toArray();
+    }
+
+    /**
+     * Appends a payload, unless recording got disabled due to a previous failure.
+     *
+     * @param label   the Oozie API label, used as replay key
+     * @param payload the raw payload
+     */
+    synchronized void record(String label, byte[] payload) {
+        if (disabled) {
+            return;
+        }
+        final byte[] compressed = compress(payload);
+        final byte[] labelBytes = label.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer buf = ByteBuffer.allocate(8 + 4 + labelBytes.length + 4 + 4 + compressed.length);
+        buf.putLong(clock.getAsLong())
+                .putInt(labelBytes.length).put(labelBytes)
+                .putInt(payload.length)
+                .putInt(compressed.length).put(compressed)
+                .flip();
+        try {
+            if (null == segment || segment.size() + buf.remaining() > MAX_SEGMENT_BYTES) {
+                rollSegment();
+            }
+            while (buf.hasRemaining()) {
+                segment.write(buf);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Can not record payload of " + label + " to " + directory + ", disabling recording", e);
+            disabled = true;
+            try {
+                close();
+            } catch (IOException closeException) {
+                LOGGER.debug("Ignoring error closing segment", closeException);
+            }
+        }
+    }
+
+    private byte[] compress(byte[] payload) {
+        deflater.reset();
+        deflater.setInput(payload);
+        deflater.finish();
+        byte[] buf = new byte[Math.max(64, payload.length / 4)];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            length += deflater.deflate(buf, length, buf.length - length);
+        }
+        return Arrays.copyOf(buf, length);
+    }
+
+    private void rollSegment() throws IOException {
+        close();
+        final Path path = directory.resolve(getSegmentFileName(segmentIndex++));
+        segment = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        final ByteBuffer header = ByteBuffer.allocate(8).putInt(MAGIC).putInt(VERSION);
+        header.flip();
+        while (header.hasRemaining()) {
+            segment.write(header);
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Recording to new segment {}", path);
+        }
+
+        final int[] indices = getSegmentIndices();
+        for (int i = 0; i < indices.length - maxSegments; i++) {
+            Files.deleteIfExists(directory.resolve(getSegmentFileName(indices[i])));
+        }
+    }
+
+    synchronized void close() throws IOException {
+        if (null != segment) {
+            segment.close();
+            segment = null;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package de.m3y.prometheus.exporter.oozie;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Replays Oozie API payloads recorded by {@link PayloadRecorder}, reading segments via memory mapped I/O.
+ * <p>
+ * With a positive speed factor, returns the latest payload recorded before the scaled time elapsed since replay start
+ * (1 for original speed, 10 for ten times faster).
+ * With speed 0, returns the next recorded payload per call.
+ * When reaching the end of the recording, the last payload is returned repeatedly.
+ * <p>
+ * Collectors depending on time (eg SLA) use {@link #currentTime()} instead of the wall clock, so that replay
+ * reproduces the recorded scrapes.
+ */
+class PayloadReplayer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PayloadReplayer.class);
+    /** Upper bound of deflate compression ratio, for detecting corrupt payload lengths */
+    private static final long MAX_DEFLATE_RATIO = 1032;
+
+    static class RecordedPayload {
+        final long timestamp;
+        final ByteBuffer segment;
+        final int offset;
+        final int compressedLength;
+        final int length;
+
+        RecordedPayload(long timestamp, ByteBuffer segment, int offset, int compressedLength, int length) {
+            this.timestamp = timestamp;
+            this.segment = segment;
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.length = length;
+        }
+    }
+
+    private final double speed;
+    private final LongSupplier clock;
+    private final Map<String, List<RecordedPayload>> payloads = new HashMap<>();
+    private final Map<String, Integer> positions = new HashMap<>();
+    private long firstTimestamp = Long.MAX_VALUE;
+    /** Recording time of the last replayed payload, or -1 if none */
+    private long lastReplayedTimestamp = -1;
+    private final long replayStart;
+
+    PayloadReplayer(String directory, double speed) throws IOException {
+        this(directory, speed, System::currentTimeMillis);
+    }
+
+    PayloadReplayer(String directory, double speed, LongSupplier clock) throws IOException {
+        this.speed = speed;
+        this.clock = clock;
+        final File[] files = new File(directory).listFiles(
+                (dir, name) -> PayloadRecorder.SEGMENT_FILE_PATTERN.matcher(name).matches());
+        if (null == files || files.length == 0) {
+            throw new IllegalArgumentException("No recorded segments in " + directory);
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            index(file);
+        }
+        replayStart = clock.getAsLong();
+        LOGGER.info("Replaying Oozie API payloads {} from {} at speed {}", payloads.keySet(), directory, speed);
+    }
+
+    private void index(File file) throws IOException {
+        final MappedByteBuffer segment;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (segment.remaining() < 8 || segment.getInt() != PayloadRecorder.MAGIC
+                || segment.getInt() != PayloadRecorder.VERSION) {
+            throw new IllegalArgumentException("Not a supported recording segment: " + file);
+        }
+        while (segment.remaining() >= 12) {
+            final long timestamp = segment.getLong();
+            final int labelLength = segment.getInt();
+            if (labelLength < 0 || segment.remaining() < (long) labelLength + 8) {
+                break;
+            }
+            final byte[] label = new byte[labelLength];
+            segment.get(label);
+            final int payloadLength = segment.getInt();
+            final int compressedLength = segment.getInt();
+            if (payloadLength < 0 || compressedLength < 0 || segment.remaining() < compressedLength
+                    || payloadLength > MAX_DEFLATE_RATIO * compressedLength + 64) {
+                break;
+            }
+            payloads.computeIfAbsent(new String(label, StandardCharsets.UTF_8), k -> new ArrayList<>())
+                    .add(new RecordedPayload(timestamp, segment, segment.position(), compressedLength, payloadLength));
+            segment.position(segment.position() + compressedLength);
+            firstTimestamp = Math.min(firstTimestamp, timestamp);
+        }
+        if (segment.hasRemaining()) {
+            LOGGER.warn("Ignoring truncated or corrupt record at end of segment {}", file);
+        }
+    }
+
+    boolean hasPayloads(String label) {
+        return payloads.containsKey(label);
+    }
+
+    /**
+     * Gets the current replay time in recording time.
+     *
+     * @return the scaled time elapsed since replay start added to the recording start, or with speed 0
+     *         the recording time of the last replayed payload (recording start if none replayed yet).
+     */
+    synchronized long currentTime() {
+        if (speed <= 0) {
+            return lastReplayedTimestamp < 0 ? firstTimestamp : lastReplayedTimestamp;
+        }
+        return firstTimestamp + (long) ((clock.getAsLong() - replayStart) * speed);
+    }
+
+    /**
+     * Gets the payload to replay for given Oozie API.
+     *
+     * @param label the Oozie API label
+     * @return the raw payload
+     */
+    synchronized byte[] next(String label) {
+        final List<RecordedPayload> recorded = payloads.get(label);
+        if (null == recorded) {
+            throw new IllegalStateException("No recorded payloads for " + label);
+        }
+        int position = positions.getOrDefault(label, -1);
+        if (speed <= 0) {
+            position = Math.min(position + 1, recorded.size() - 1);
+        } else {
+            final long replayTime = currentTime();
+            while (position + 1 < recorded.size() && recorded.get(position + 1).timestamp <= replayTime) {
+                position++;
+            }
+            position = Math.max(position, 0);
+        }
+        positions.put(label, position);
+
+        final RecordedPayload payload = recorded.get(position);
+        lastReplayedTimestamp = payload.timestamp;
+        final ByteBuffer buf = payload.segment.duplicate();
+        buf.position(payload.offset);
+        final byte[] compressed = new byte[payload.compressedLength];
+        buf.get(compressed);
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            final byte[] bytes = new byte[payload.length];
+            int length = 0;
+            while (length < bytes.length && !inflater.finished()) {
+                final int inflated = inflater.inflate(bytes, length, bytes.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != bytes.length) {
+                throw new IllegalStateException("Corrupt recorded payload of " + label + ", expected "
+                        + bytes.length + " bytes but got " + length);
+            }
+            return bytes;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt recorded payload of " + label, e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
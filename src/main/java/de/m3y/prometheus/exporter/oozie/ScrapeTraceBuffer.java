@@ -0,0 +1,97 @@
+package de.m3y.prometheus.exporter.oozie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps traces of the last N scrapes of an Oozie API, for debugging scrape latency and errors.
+ */
+class ScrapeTraceBuffer {
+
+    /**
+     * Trace of a single scrape. Phase offsets are in milliseconds since scrape start, or -1 if phase not reached.
+     * <p>
+     * A scrape can make several requests (eg SLA paging), so the trace keeps the first response,
+     * the last body read and parse, the total payload bytes and the worst HTTP status.
+     */
+    static class ScrapeTrace {
+        final long startTimestamp = System.currentTimeMillis();
+        private final long startNanos = System.nanoTime();
+        volatile double responseOffset = -1;
+        volatile double bodyReadOffset = -1;
+        volatile double parsedOffset = -1;
+        volatile double endOffset = -1;
+        volatile int httpStatus = -1;
+        volatile long payloadBytes = -1;
+        volatile int requests;
+        volatile int seriesCount = -1;
+        volatile String error;
+
+        void responseReceived(int status) {
+            if (httpStatus < 0 || isSuccessful(httpStatus) && !isSuccessful(status)
+                    || !isSuccessful(status) && status > httpStatus) {
+                httpStatus = status;
+            }
+            if (responseOffset < 0) {
+                responseOffset = offset();
+            }
+        }
+
+        private static boolean isSuccessful(int status) {
+            return status >= 200 && status < 300;
+        }
+
+        void bodyRead(long bytes) {
+            payloadBytes = Math.max(payloadBytes, 0) + bytes;
+            requests++;
+            bodyReadOffset = offset();
+        }
+
+        void parsed() {
+            parsedOffset = offset();
+        }
+
+        void end(int series) {
+            seriesCount = series;
+            endOffset = offset();
+        }
+
+        void failed(Exception e) {
+            error = e.toString();
+            endOffset = offset();
+        }
+
+        private double offset() {
+            return (System.nanoTime() - startNanos) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+
+    private final ScrapeTrace[] traces;
+    private int next;
+    private int count;
+
+    ScrapeTraceBuffer(int size) {
+        traces = new ScrapeTrace[size];
+    }
+
+    synchronized void add(ScrapeTrace trace) {
+        if (traces.length == 0) {
+            return;
+        }
+        traces[next] = trace;
+        next = (next + 1) % traces.length;
+        count = Math.min(count + 1, traces.length);
+    }
+
+    /**
+     * @return the traces, most recent first.
+     */
+    synchronized List<ScrapeTrace> getTraces() {
+        List<ScrapeTrace> list = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            list.add(traces[(next - i + traces.length) % traces.length]);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,71 @@
+package de.m3y.prometheus.exporter.oozie;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Displays traces of the last scrapes per Oozie API, including phase timings, HTTP status and errors.
+ */
+public class ScrapeTraceServlet extends HttpServlet {
+
+    private final transient OozieCollector oozieCollector;
+
+    public ScrapeTraceServlet(OozieCollector oozieCollector) {
+        this.oozieCollector = oozieCollector;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setContentType("text/html");
+        resp.getWriter().print(toHtml());
+    }
+
+    String toHtml() {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        StringBuilder buf = new StringBuilder().append("<html>\n"
+                + "<head><title>Apache Oozie Exporter - Scrapes</title></head>\n"
+                + "<body>\n"
+                + "<h1>Scrapes</h1>\n"
+                + "<p>Phase timings are in milliseconds since scrape start, most recent scrape first.<br/>\n"
+                + "For scrapes with several requests, Response is the first response, Body read and Parsed the last ones,"
+                + " Payload bytes the total and HTTP status the worst status.<br/>\n"
+                + "Series counts the label sets currently exported by the collector of the Oozie API.</p>\n");
+        for (Map.Entry<String, ScrapeTraceBuffer> entry : oozieCollector.getScrapeTraces().entrySet()) {
+            buf.append("<h2>").append(entry.getKey()).append("</h2>\n"
+                    + "<table border=\"1\"><tr>"
+                    + "<th>Start</th><th>Response</th><th>Body read</th><th>Parsed</th><th>End</th>"
+                    + "<th>Requests</th><th>HTTP status</th><th>Payload bytes</th><th>Series</th><th>Error</th></tr>\n");
+            for (ScrapeTraceBuffer.ScrapeTrace trace : entry.getValue().getTraces()) {
+                buf.append("<tr><td>").append(dateFormat.format(new Date(trace.startTimestamp)))
+                        .append("</td><td>").append(formatOffset(trace.responseOffset))
+                        .append("</td><td>").append(formatOffset(trace.bodyReadOffset))
+                        .append("</td><td>").append(formatOffset(trace.parsedOffset))
+                        .append("</td><td>").append(formatOffset(trace.endOffset))
+                        .append("</td><td>").append(trace.requests)
+                        .append("</td><td>").append(trace.httpStatus)
+                        .append("</td><td>").append(trace.payloadBytes)
+                        .append("</td><td>").append(trace.seriesCount)
+                        .append("</td><td>").append(null == trace.error ? "" : escapeHtml(trace.error))
+                        .append("</td></tr>\n");
+            }
+            buf.append("</table>\n");
+        }
+        buf.append("</body>\n"
+                + "</html>");
+        return buf.toString();
+    }
+
+    private static String formatOffset(double offset) {
+        return offset < 0 ? "-" : String.format(Locale.US, "%.1f", offset);
+    }
+
+    private static String escapeHtml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -1,5 +1,6 @@
 package de.m3y.prometheus.exporter.oozie;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.Arrays;
 
@@ -12,10 +13,13 @@ import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
 
 public class WebServer {
+    /** Placeholder, as replay does not invoke Oozie API */
+    static final String REPLAY_OOZIE_URL = "http://replay.invalid/oozie";
 
     private Server server;
+    private LightweightWebServer lightweightServer;
 
-    WebServer configure(Config config) {
+    WebServer configure(Config config) throws IOException {
         DefaultExports.initialize();
 
         final OozieCollector oozieCollector = new OozieCollector(config);
@@ -24,14 +28,23 @@ public class WebServer {
         final BuildInfoExporter buildInfo = new BuildInfoExporter("oozie_exporter_",
                 "oozie_exporter").register();
 
-        // Jetty
         InetSocketAddress inetAddress = new InetSocketAddress(config.listenerHost, config.listenerPort);
-        server = new Server(inetAddress);
-        ServletContextHandler context = new ServletContextHandler();
-        context.setContextPath("/");
-        server.setHandler(context);
-        context.addServlet(new ServletHolder(new MetricsServlet()), "/metrics");
-        context.addServlet(new ServletHolder(new HomePageServlet(config, buildInfo)), "/");
+        final HomePageServlet homePage = new HomePageServlet(config, buildInfo);
+        final ScrapeTraceServlet scrapeTraces = new ScrapeTraceServlet(oozieCollector);
+        if (config.webLightweight) {
+            lightweightServer = new LightweightWebServer(inetAddress, config);
+            lightweightServer.addPage("/debug/scrapes", scrapeTraces::toHtml);
+            lightweightServer.addPage("/", homePage::toHtml);
+        } else {
+            // Jetty
+            server = new Server(inetAddress);
+            ServletContextHandler context = new ServletContextHandler();
+            context.setContextPath("/");
+            server.setHandler(context);
+            context.addServlet(new ServletHolder(new MetricsServlet()), "/metrics");
+            context.addServlet(new ServletHolder(scrapeTraces), "/debug/scrapes");
+            context.addServlet(new ServletHolder(homePage), "/");
+        }
 
         return this;
     }
@@ -41,6 +54,11 @@ public class WebServer {
         return server;
     }
 
+    LightweightWebServer startLightweight() {
+        lightweightServer.start();
+        return lightweightServer;
+    }
+
     public static void main(String[] args) throws Exception {
         if (args.length < 2) {
             System.err.println("Expected more arguments, got " + Arrays.toString(args));
@@ -49,10 +67,12 @@ public class WebServer {
 
         Config config = parseArgs(args);
 
-        new WebServer().
-                configure(config).
-                start().
-                join();
+        final WebServer webServer = new WebServer().configure(config);
+        if (config.webLightweight) {
+            webServer.startLightweight().join();
+        } else {
+            webServer.start().join();
+        }
     }
 
     private static void printUsageAndExit() {
@@ -62,10 +82,25 @@ public class WebServer {
         System.err.println("OPTIONS:");
         System.err.println("    -web.listen-address=[<hostname>:]<port>  Exporter listener address"); // NOSONAR
         System.err.println("    -oozie.url=<Oozie API Url>               Oozie API oozieApiUrl, eg http://localhost:11000/oozie"); // NOSONAR
+        System.err.println("                                             Optional when replaying via -replay.dir");
         System.err.println("    [-oozie.user=<USER>]                     Oozie API user for authentication");
         System.err.println("    [-oozie.password=<PWD>]                  Oozie API password for authentication");
         System.err.println("    [-oozie.password.env=<ENV VAR>]          Env var containing Oozie API password for authentication");
         System.err.println("    [-skipHttpsVerification]                 Skip SSL/TLS verification for Oozie HTTPS URL"); // NOSONAR
+        System.err.println("    [-oozie.sla]                             Enables collecting Oozie SLA metrics via v2/sla API");
+        System.err.println("    [-oozie.sla.lookback-hours=<HOURS>]      Oldest SLA nominal time to poll, defaults to 24 hours");
+        System.err.println("    [-oozie.sla.max-records=<NUM>]           Max unfinished SLA records tracked, defaults to 10000");
+        System.err.println("    [-series.max-per-family=<NUM>]           Max series per metric family, defaults to 10000");
+        System.err.println("    [-series.ttl-polls=<NUM>]                Removes series not updated for NUM polls, defaults to 10");
+        System.err.println("    [-debug.scrape-traces=<NUM>]             Scrapes per Oozie API shown on /debug/scrapes, defaults to 20");
+        System.err.println("    [-web.lightweight]                       Serves via lightweight JDK HTTP server instead of Jetty");
+        System.err.println("    [-web.workers=<NUM>]                     Lightweight server worker threads, defaults to 2");
+        System.err.println("    [-web.timeout-seconds=<SECONDS>]         Lightweight server request/response timeout, defaults to 30");
+        System.err.println("    [-web.keep-alive-seconds=<SECONDS>]      Lightweight server keep-alive idle timeout, defaults to 30");
+        System.err.println("    [-record.dir=<DIR>]                      Records Oozie API payloads to segment files in DIR");
+        System.err.println("    [-record.max-segments=<NUM>]             Max 16MB recording segments kept, defaults to 16");
+        System.err.println("    [-replay.dir=<DIR>]                      Replays Oozie API payloads recorded in DIR instead of calling Oozie");
+        System.err.println("    [-replay.speed=<FACTOR>]                 Replay speed factor, 0 for next payload per scrape. Defaults to 1");
         System.err.println("    [-Dlog.level=[DEBUG|INFO|WARN|ERROR]]    Sets the log level. Defaults to INFO"); // NOSONAR
         System.err.println();
         System.exit(1);
@@ -98,6 +133,34 @@ public class WebServer {
                 config.oozieUser = arg.substring("-oozie.user=".length());
             } else if (arg.startsWith("-oozie.password=")) {
                 config.ooziePassword = arg.substring("-oozie.password=".length());
+            } else if (arg.equals("-oozie.sla")) {
+                config.slaEnabled = true;
+            } else if (arg.startsWith("-oozie.sla.lookback-hours=")) {
+                config.slaLookbackHours = Integer.parseInt(arg.substring("-oozie.sla.lookback-hours=".length()));
+            } else if (arg.startsWith("-oozie.sla.max-records=")) {
+                config.slaMaxRecords = Integer.parseInt(arg.substring("-oozie.sla.max-records=".length()));
+            } else if (arg.startsWith("-series.max-per-family=")) {
+                config.seriesMaxPerFamily = Integer.parseInt(arg.substring("-series.max-per-family=".length()));
+            } else if (arg.startsWith("-series.ttl-polls=")) {
+                config.seriesTtlPolls = Integer.parseInt(arg.substring("-series.ttl-polls=".length()));
+            } else if (arg.startsWith("-debug.scrape-traces=")) {
+                config.scrapeTraceSize = Integer.parseInt(arg.substring("-debug.scrape-traces=".length()));
+            } else if (arg.equals("-web.lightweight")) {
+                config.webLightweight = true;
+            } else if (arg.startsWith("-web.workers=")) {
+                config.webWorkers = Integer.parseInt(arg.substring("-web.workers=".length()));
+            } else if (arg.startsWith("-web.timeout-seconds=")) {
+                config.webTimeoutSeconds = Integer.parseInt(arg.substring("-web.timeout-seconds=".length()));
+            } else if (arg.startsWith("-web.keep-alive-seconds=")) {
+                config.webKeepAliveSeconds = Integer.parseInt(arg.substring("-web.keep-alive-seconds=".length()));
+            } else if (arg.startsWith("-record.dir=")) {
+                config.recordDirectory = arg.substring("-record.dir=".length());
+            } else if (arg.startsWith("-record.max-segments=")) {
+                config.recordMaxSegments = Integer.parseInt(arg.substring("-record.max-segments=".length()));
+            } else if (arg.startsWith("-replay.dir=")) {
+                config.replayDirectory = arg.substring("-replay.dir=".length());
+            } else if (arg.startsWith("-replay.speed=")) {
+                config.replaySpeed = Double.parseDouble(arg.substring("-replay.speed=".length()));
             } else if (arg.startsWith("-oozie.password.env=")) {
                 config.ooziePassword = System.getenv(arg.substring("-oozie.password.env=".length()));
             } else {
@@ -105,6 +168,16 @@ public class WebServer {
                 printUsageAndExit();
             }
         }
+
+        if (null != config.replayDirectory) {
+            if (null != config.recordDirectory) {
+                System.err.println("Can not use -record.dir together with -replay.dir");
+                printUsageAndExit();
+            }
+            if (null == config.oozieApiUrl) {
+                config.oozieApiUrl = REPLAY_OOZIE_URL;
+            }
+        }
         return config;
     }
 }
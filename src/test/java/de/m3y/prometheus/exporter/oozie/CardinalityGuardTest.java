@@ -0,0 +1,47 @@
+package de.m3y.prometheus.exporter.oozie;
+
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Gauge;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class CardinalityGuardTest {
+    @Test
+    public void testMaxSeriesAndTtl() {
+        Gauge gauge = Gauge.build()
+                .name("test_guarded")
+                .help("Test gauge")
+                .labelNames("name")
+                .create();
+        CardinalityGuard guard = new CardinalityGuard(gauge, 2, 2);
+
+        guard.labels("a").set(1);
+        guard.labels("b").set(2);
+        guard.labels("c").set(3); // Dropped
+        guard.endPoll();
+        assertEquals(2, gauge.collect().get(0).samples.size());
+        assertEquals(1.0, getSample("oozie_series_dropped_total"), 0.0);
+
+        guard.labels("a").set(1);
+        guard.labels("c").set(3); // Still dropped, but not counted again
+        guard.endPoll();
+        assertEquals(2, gauge.collect().get(0).samples.size());
+        assertEquals(1.0, getSample("oozie_series_dropped_total"), 0.0);
+
+        guard.labels("a").set(1);
+        guard.endPoll(); // b not updated for 2 polls
+        assertEquals(1, gauge.collect().get(0).samples.size());
+        assertEquals("a", gauge.collect().get(0).samples.get(0).labelValues.get(0));
+        assertEquals(1.0, getSample("oozie_series_evicted_total"), 0.0);
+        assertEquals(1.0, getSample("oozie_series"), 0.0);
+
+        guard.labels("c").set(3); // Room again
+        assertEquals(2, gauge.collect().get(0).samples.size());
+    }
+
+    private static Double getSample(String name) {
+        return CollectorRegistry.defaultRegistry.getSampleValue(name,
+                new String[]{"family"}, new String[]{"test_guarded"});
+    }
+}
@@ -0,0 +1,143 @@
+package de.m3y.prometheus.exporter.oozie;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.prometheus.client.Gauge;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LightweightWebServerTest {
+    private static final Gauge GAUGE_A = Gauge.build().name("test_lightweight_a").help("Test").register();
+    private static final Gauge GAUGE_B = Gauge.build().name("test_lightweight_b").help("Test").register();
+
+    private LightweightWebServer server;
+    private String baseUrl;
+    private final OkHttpClient client = new OkHttpClient();
+    private final CountDownLatch slowEntered = new CountDownLatch(1);
+    private final CountDownLatch slowRelease = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws IOException {
+        Config config = new Config();
+        config.webWorkers = 1;
+        server = new LightweightWebServer(new InetSocketAddress("localhost", 0), config);
+        server.addPage("/", () -> "<html>Home</html>");
+        server.addPage("/slow", () -> {
+            slowEntered.countDown();
+            try {
+                slowRelease.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "<html>Slow</html>";
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getPort();
+    }
+
+    @After
+    public void tearDown() {
+        slowRelease.countDown();
+        server.stop();
+    }
+
+    @Test
+    public void testServe() throws IOException {
+        GAUGE_A.set(1);
+        GAUGE_B.set(2);
+        try (Response response = getResponse(baseUrl + "/metrics")) {
+            assertEquals(200, response.code());
+            assertTrue(response.header("Content-Type").startsWith("text/plain"));
+            final String body = response.body().string();
+            assertTrue(body.contains("test_lightweight_a 1.0"));
+            assertTrue(body.contains("test_lightweight_b 2.0"));
+        }
+
+        try (Response response = getResponse(baseUrl + "/metrics?name[]=test_lightweight_a")) {
+            assertEquals(200, response.code());
+            final String body = response.body().string();
+            assertTrue(body.contains("test_lightweight_a 1.0"));
+            assertFalse(body.contains("test_lightweight_b"));
+        }
+
+        try (Response response = getResponse(baseUrl + "/")) {
+            assertEquals(200, response.code());
+            assertEquals("<html>Home</html>", response.body().string());
+        }
+
+        // Like Jetty "/" mapping
+        try (Response response = getResponse(baseUrl + "/unknown")) {
+            assertEquals(200, response.code());
+            assertEquals("<html>Home</html>", response.body().string());
+        }
+    }
+
+    @Test
+    public void testRejectWhenWorkersBusy() throws Exception {
+        final CompletableFuture<Integer> slow = CompletableFuture.supplyAsync(() -> {
+            try (Response response = getResponse(baseUrl + "/slow")) {
+                return response.code();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(slowEntered.await(10, TimeUnit.SECONDS));
+
+        try (Response response = getResponse(baseUrl + "/metrics")) {
+            assertEquals(503, response.code());
+        }
+
+        slowRelease.countDown();
+        assertEquals(200, (int) slow.get(10, TimeUnit.SECONDS));
+        try (Response response = getResponse(baseUrl + "/metrics")) {
+            assertEquals(200, response.code());
+        }
+    }
+
+    @Test
+    public void testPartialRequestWhenWorkersBusyDoesNotBlock() throws Exception {
+        final CompletableFuture<Integer> slow = CompletableFuture.supplyAsync(() -> {
+            try (Response response = getResponse(baseUrl + "/slow")) {
+                return response.code();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(slowEntered.await(10, TimeUnit.SECONDS));
+
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            // Half-sent request, rejected while worker is busy
+            final OutputStream out = socket.getOutputStream();
+            out.write("GET /metrics HTTP/1.1\r\nHo".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            Thread.sleep(200);
+
+            slowRelease.countDown();
+            assertEquals(200, (int) slow.get(10, TimeUnit.SECONDS));
+            final long start = System.nanoTime();
+            try (Response response = getResponse(baseUrl + "/")) {
+                assertEquals(200, response.code());
+            }
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        }
+    }
+
+    private Response getResponse(String url) throws IOException {
+        return client.newCall(new Request.Builder().url(url).build()).execute();
+    }
+}
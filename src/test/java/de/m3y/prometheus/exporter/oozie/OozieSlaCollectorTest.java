@@ -0,0 +1,200 @@
+package de.m3y.prometheus.exporter.oozie;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import de.m3y.prometheus.exporter.oozie.OozieCollector.OozieSlaCollector;
+import io.prometheus.client.CollectorRegistry;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class OozieSlaCollectorTest {
+    private static final long NOW = 1600000000000L;
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Serves SLA records like Oozie, filtered by nominal start and limited by len, ordered by nominal time.
+     */
+    static class FakeSlaCollector extends OozieSlaCollector {
+        final List<JSONObject> records = new ArrayList<>();
+        int requests;
+        int servedRecords;
+
+        FakeSlaCollector(Config config, long startTime) {
+            super(new OkHttpClient(), config, startTime);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        JSONObject parseJsonObject(Request apiRequest) {
+            requests++;
+            final long nominalStart;
+            try {
+                nominalStart = createFilterDateFormat().parse(
+                        apiRequest.url().queryParameter("filter").substring("nominal_start=".length())).getTime();
+            } catch (ParseException e) {
+                throw new IllegalStateException(e);
+            }
+            final int len = Integer.parseInt(apiRequest.url().queryParameter("len"));
+            final JSONArray slaSummaries = new JSONArray();
+            records.stream()
+                    .filter(record -> ((Number) record.get("nominalTime")).longValue() >= nominalStart)
+                    .sorted(Comparator.comparingLong(record -> ((Number) record.get("nominalTime")).longValue()))
+                    .limit(len)
+                    .forEach(slaSummaries::add);
+            servedRecords += slaSummaries.size();
+            final JSONObject json = new JSONObject();
+            json.put("slaSummaryList", slaSummaries);
+            return json;
+        }
+
+        void set(String... jsonRecords) {
+            records.clear();
+            for (String jsonRecord : jsonRecords) {
+                records.add((JSONObject) JSONValue.parse(jsonRecord));
+            }
+        }
+    }
+
+    private static FakeSlaCollector createCollector(int maxRecords, long startTime) {
+        Config config = new Config();
+        config.oozieApiUrl = "http://localhost:11000/oozie";
+        config.slaMaxRecords = maxRecords;
+        return new FakeSlaCollector(config, startTime);
+    }
+
+    private static String record(String id, String appName, String slaStatus, long nominalTime, long lastModified) {
+        return "{\"id\":\"" + id + "\",\"appName\":\"" + appName + "\",\"slaStatus\":\"" + slaStatus + "\","
+                + "\"nominalTime\":" + nominalTime + ",\"lastModified\":" + lastModified + "}";
+    }
+
+    private static String finishedRecord(String id, String appName, String slaStatus, long nominalTime,
+                                         long lastModified) {
+        return record(id, appName, slaStatus, nominalTime, lastModified).replace("}", ",\"actualEnd\":" + lastModified + "}");
+    }
+
+    @Test
+    public void testFinishAndLag() {
+        FakeSlaCollector collector = createCollector(10, 0);
+
+        collector.set("{\"id\":\"1-C@1\",\"appName\":\"app_a\",\"slaStatus\":\"IN_PROCESS\",\"nominalTime\":" + (NOW - 2 * HOUR) + ","
+                        + "\"lastModified\":1000,\"expectedStart\":1000,\"actualStart\":2000}",
+                record("1-C@2", "app_a", "NOT_STARTED", NOW - HOUR, 1000));
+        collector.scrape(NOW);
+        assertEquals(1.0, getSample("oozie_sla_active", "app_a", "IN_PROCESS"), 0.0);
+        assertEquals(1.0, getSample("oozie_sla_active", "app_a", "NOT_STARTED"), 0.0);
+
+        // First record finishes with misses, second one unchanged
+        collector.set("{\"id\":\"1-C@1\",\"appName\":\"app_a\",\"slaStatus\":\"MISS\",\"nominalTime\":" + (NOW - 2 * HOUR) + ","
+                        + "\"lastModified\":3000,\"expectedStart\":1000,\"actualStart\":2000,"
+                        + "\"expectedEnd\":3000,\"actualEnd\":63000,\"expectedDuration\":2000,\"actualDuration\":61000}",
+                record("1-C@2", "app_a", "NOT_STARTED", NOW - HOUR, 1000));
+        collector.scrape(NOW);
+        assertEquals(0.0, getSample("oozie_sla_active", "app_a", "IN_PROCESS"), 0.0);
+        assertEquals(1.0, getSample("oozie_sla_active", "app_a", "NOT_STARTED"), 0.0);
+        assertEquals(1.0, getSample("oozie_sla_finished_total", "app_a", "MISS"), 0.0);
+        assertEquals(1.0, getSample("oozie_sla_start_miss_lag_seconds_sum", "app_a"), 0.0);
+        assertEquals(60.0, getSample("oozie_sla_end_miss_lag_seconds_sum", "app_a"), 0.0);
+        assertEquals(59.0, getSample("oozie_sla_duration_miss_lag_seconds_sum", "app_a"), 0.0);
+        // Active and finished app/status pairs, and app of each lag histogram
+        assertEquals(6, collector.getSeriesCount());
+
+        // Refetched finished record is not counted twice
+        collector.scrape(NOW);
+        assertEquals(1.0, getSample("oozie_sla_finished_total", "app_a", "MISS"), 0.0);
+    }
+
+    @Test
+    public void testLookbackAndPaging() {
+        FakeSlaCollector collector = createCollector(2, 0);
+        collector.set(record("2-C@1", "app_w", "NOT_STARTED", NOW - 48 * HOUR, NOW - 48 * HOUR));
+        collector.scrape(NOW - 30 * HOUR);
+        assertEquals(1.0, getSample("oozie_sla_active", "app_w", "NOT_STARTED"), 0.0);
+        final double evicted = CollectorRegistry.defaultRegistry.getSampleValue("oozie_sla_index_evicted_total");
+
+        // Old active record beyond lookback, and more than max records newer records
+        collector.records.add((JSONObject) JSONValue.parse(record("2-C@2", "app_w", "NOT_STARTED", NOW - 3 * HOUR, NOW - 20 * MINUTE)));
+        collector.records.add((JSONObject) JSONValue.parse(record("2-C@3", "app_w", "NOT_STARTED", NOW - 2 * HOUR, NOW - 20 * MINUTE)));
+        collector.records.add((JSONObject) JSONValue.parse(record("2-C@4", "app_w", "NOT_STARTED", NOW - HOUR, NOW - 20 * MINUTE)));
+        collector.records.add((JSONObject) JSONValue.parse(finishedRecord("2-C@5", "app_w", "MET", NOW - 30 * MINUTE, NOW - 10 * MINUTE)));
+        collector.requests = 0;
+        collector.scrape(NOW);
+        assertEquals(4, collector.requests); // Pages through newer records
+        assertEquals(1.0, getSample("oozie_sla_finished_total", "app_w", "MET"), 0.0);
+        // Evicted old record by lookback, and record with oldest nominal time by max records
+        assertEquals(2.0, getSample("oozie_sla_active", "app_w", "NOT_STARTED"), 0.0);
+        assertEquals(evicted + 2, CollectorRegistry.defaultRegistry.getSampleValue("oozie_sla_index_evicted_total"), 0.0);
+
+        // Evicted records are not re-added, finished not counted again
+        collector.scrape(NOW + MINUTE);
+        assertEquals(2.0, getSample("oozie_sla_active", "app_w", "NOT_STARTED"), 0.0);
+        assertEquals(evicted + 2, CollectorRegistry.defaultRegistry.getSampleValue("oozie_sla_index_evicted_total"), 0.0);
+        assertEquals(1.0, getSample("oozie_sla_finished_total", "app_w", "MET"), 0.0);
+    }
+
+    @Test
+    public void testRecordsFinishedBeforeStartNotCounted() {
+        FakeSlaCollector collector = createCollector(10, NOW);
+        collector.set(finishedRecord("3-C@1", "app_r", "MISS", NOW - 2 * HOUR, NOW - HOUR),
+                record("3-C@2", "app_r", "IN_PROCESS", NOW - HOUR, NOW - HOUR));
+        collector.scrape(NOW);
+        assertNull(getSample("oozie_sla_finished_total", "app_r", "MISS"));
+        assertEquals(1.0, getSample("oozie_sla_active", "app_r", "IN_PROCESS"), 0.0);
+
+        collector.records.add((JSONObject) JSONValue.parse(finishedRecord("3-C@3", "app_r", "MISS", NOW - 30 * MINUTE, NOW + 1000)));
+        collector.scrape(NOW + MINUTE);
+        assertEquals(1.0, getSample("oozie_sla_finished_total", "app_r", "MISS"), 0.0);
+    }
+
+    @Test
+    public void testPollFetchesTailOnly() {
+        FakeSlaCollector collector = createCollector(10, 0);
+        collector.set(finishedRecord("4-C@1", "app_t", "MET", NOW - 5 * HOUR, NOW - 4 * HOUR),
+                finishedRecord("4-C@2", "app_t", "MET", NOW - 4 * HOUR, NOW - 3 * HOUR),
+                record("4-C@3", "app_t", "IN_PROCESS", NOW - 3 * HOUR, NOW - 3 * HOUR),
+                finishedRecord("4-C@4", "app_t", "MET", NOW - 2 * HOUR, NOW - HOUR),
+                record("4-C@5", "app_t", "NOT_STARTED", NOW - HOUR, NOW - HOUR));
+        collector.scrape(NOW);
+        assertEquals(5, collector.servedRecords);
+        assertEquals(3.0, getSample("oozie_sla_finished_total", "app_t", "MET"), 0.0);
+
+        // Unchanged poll starts at oldest unfinished record
+        collector.servedRecords = 0;
+        collector.scrape(NOW + MINUTE);
+        assertEquals(3, collector.servedRecords);
+
+        // Without unfinished records, starts at newest record of previous poll
+        collector.set(finishedRecord("4-C@1", "app_t", "MET", NOW - 5 * HOUR, NOW - 4 * HOUR),
+                finishedRecord("4-C@2", "app_t", "MET", NOW - 4 * HOUR, NOW - 3 * HOUR),
+                finishedRecord("4-C@3", "app_t", "MET", NOW - 3 * HOUR, NOW + MINUTE),
+                finishedRecord("4-C@4", "app_t", "MET", NOW - 2 * HOUR, NOW - HOUR),
+                finishedRecord("4-C@5", "app_t", "MET", NOW - HOUR, NOW + MINUTE));
+        collector.scrape(NOW + 2 * MINUTE);
+        assertEquals(5.0, getSample("oozie_sla_finished_total", "app_t", "MET"), 0.0);
+        collector.servedRecords = 0;
+        collector.scrape(NOW + 3 * MINUTE);
+        assertEquals(1, collector.servedRecords);
+        assertEquals(5.0, getSample("oozie_sla_finished_total", "app_t", "MET"), 0.0);
+    }
+
+    private static Double getSample(String name, String appName, String slaStatus) {
+        return CollectorRegistry.defaultRegistry.getSampleValue(name,
+                new String[]{"app_name", "sla_status"}, new String[]{appName, slaStatus});
+    }
+
+    private static Double getSample(String name, String appName) {
+        return CollectorRegistry.defaultRegistry.getSampleValue(name,
+                new String[]{"app_name"}, new String[]{appName});
+    }
+}
@@ -0,0 +1,163 @@
+package de.m3y.prometheus.exporter.oozie;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.prometheus.client.Collector.MetricFamilySamples;
+import io.prometheus.client.CollectorRegistry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PayloadReplayerTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRecordAndReplay() throws IOException, InterruptedException {
+        final String directory = temporaryFolder.getRoot().getAbsolutePath();
+        PayloadRecorder recorder = new PayloadRecorder(directory, 10);
+        recorder.record("admin_metrics", bytes("{\"a\":1}"));
+        recorder.record("sla", bytes("{\"b\":1}"));
+        Thread.sleep(10); // Distinct recording timestamps for replay timing
+        recorder.record("admin_metrics", bytes("{\"a\":2}"));
+        recorder.close();
+        // Continues with new segment
+        recorder = new PayloadRecorder(directory, 10);
+        recorder.record("admin_metrics", bytes("{\"a\":3}"));
+        recorder.close();
+
+        PayloadReplayer replayer = new PayloadReplayer(directory, 0);
+        assertTrue(replayer.hasPayloads("sla"));
+        assertFalse(replayer.hasPayloads("admin_instrumentation"));
+        assertEquals("{\"a\":1}", string(replayer.next("admin_metrics")));
+        assertEquals("{\"a\":2}", string(replayer.next("admin_metrics")));
+        assertEquals("{\"b\":1}", string(replayer.next("sla")));
+        assertEquals("{\"a\":3}", string(replayer.next("admin_metrics")));
+        assertEquals("{\"a\":3}", string(replayer.next("admin_metrics"))); // Stays at last
+
+        // Replay at high speed returns latest payload for elapsed time
+        final AtomicLong clock = new AtomicLong(0);
+        replayer = new PayloadReplayer(directory, 1000000, clock::get);
+        assertEquals("{\"a\":1}", string(replayer.next("admin_metrics")));
+        clock.set(1000);
+        assertEquals("{\"a\":3}", string(replayer.next("admin_metrics")));
+    }
+
+    @Test
+    public void testRetention() throws IOException {
+        final String directory = temporaryFolder.getRoot().getAbsolutePath();
+        for (int i = 0; i < 3; i++) {
+            PayloadRecorder recorder = new PayloadRecorder(directory, 2);
+            recorder.record("admin_metrics", bytes("{\"a\":" + i + "}"));
+            recorder.close();
+        }
+        assertEquals(2, temporaryFolder.getRoot().list().length);
+
+        PayloadReplayer replayer = new PayloadReplayer(directory, 0);
+        assertEquals("{\"a\":1}", string(replayer.next("admin_metrics")));
+        assertEquals("{\"a\":2}", string(replayer.next("admin_metrics")));
+    }
+
+    @Test
+    public void testRecordingFailureDisablesRecording() throws IOException {
+        final File directory = temporaryFolder.newFolder("recording");
+        PayloadRecorder recorder = new PayloadRecorder(directory.getAbsolutePath(), 2);
+        assertTrue(directory.delete());
+
+        recorder.record("admin_metrics", bytes("{\"a\":1}")); // Does not throw
+        recorder.record("admin_metrics", bytes("{\"a\":2}"));
+        assertFalse(directory.exists());
+    }
+
+    @Test
+    public void testCorruptRecordIgnored() throws IOException {
+        final String directory = temporaryFolder.getRoot().getAbsolutePath();
+        PayloadRecorder recorder = new PayloadRecorder(directory, 2);
+        recorder.record("admin_metrics", bytes("{\"a\":1}"));
+        recorder.close();
+        final ByteBuffer corrupt = ByteBuffer.allocate(12).putLong(0L).putInt(-5);
+        Files.write(Paths.get(directory, PayloadRecorder.getSegmentFileName(0)), corrupt.array(),
+                StandardOpenOption.APPEND);
+
+        PayloadReplayer replayer = new PayloadReplayer(directory, 0);
+        assertEquals("{\"a\":1}", string(replayer.next("admin_metrics")));
+    }
+
+    @Test
+    public void testReplaySlaThroughCollector() throws IOException {
+        final String directory = temporaryFolder.getRoot().getAbsolutePath();
+        // Recorded days ago, beyond SLA lookback
+        final long recordingStart = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(3);
+        final AtomicLong clock = new AtomicLong(recordingStart);
+        PayloadRecorder recorder = new PayloadRecorder(directory, 2, clock::get);
+        recorder.record("sla", bytes("{\"slaSummaryList\":[{\"id\":\"5-C@1\",\"appName\":\"app_replay\","
+                + "\"slaStatus\":\"IN_PROCESS\",\"nominalTime\":" + (recordingStart - TimeUnit.HOURS.toMillis(2))
+                + ",\"lastModified\":" + (recordingStart - TimeUnit.HOURS.toMillis(1)) + "}]}"));
+        clock.addAndGet(TimeUnit.MINUTES.toMillis(1));
+        recorder.record("sla", bytes("{\"slaSummaryList\":[{\"id\":\"5-C@1\",\"appName\":\"app_replay\","
+                + "\"slaStatus\":\"MET\",\"nominalTime\":" + (recordingStart - TimeUnit.HOURS.toMillis(2))
+                + ",\"lastModified\":" + (recordingStart + 30000) + ",\"actualEnd\":" + (recordingStart + 30000) + "}]}"));
+        recorder.close();
+
+        final double evicted = getSample("oozie_sla_index_evicted_total");
+        Config config = new Config();
+        config.oozieApiUrl = WebServer.REPLAY_OOZIE_URL;
+        config.slaEnabled = true;
+        config.replayDirectory = directory;
+        config.replaySpeed = 0;
+        OozieCollector oozieCollector = new OozieCollector(config);
+        try {
+            // Registering collects once, replaying first payload
+            assertEquals(1.0, getSample("oozie_sla_active", "app_replay", "IN_PROCESS"), 0.0);
+            scrape();
+            assertEquals(0.0, getSample("oozie_sla_active", "app_replay", "IN_PROCESS"), 0.0);
+            assertEquals(1.0, getSample("oozie_sla_finished_total", "app_replay", "MET"), 0.0);
+            scrape(); // Stays at last payload
+            assertEquals(1.0, getSample("oozie_sla_finished_total", "app_replay", "MET"), 0.0);
+            assertEquals(evicted, getSample("oozie_sla_index_evicted_total"), 0.0);
+        } finally {
+            oozieCollector.unregister();
+        }
+    }
+
+    private static void scrape() {
+        Collections.list(CollectorRegistry.defaultRegistry.metricFamilySamples());
+    }
+
+    /**
+     * Gets a sample value without scraping the Oozie API collectors, unlike CollectorRegistry.getSampleValue .
+     */
+    private static double getSample(String name, String... labelValues) {
+        for (MetricFamilySamples metricFamilySamples : Collections.list(
+                CollectorRegistry.defaultRegistry.filteredMetricFamilySamples(Collections.singleton(name)))) {
+            for (MetricFamilySamples.Sample sample : metricFamilySamples.samples) {
+                if (sample.name.equals(name) && sample.labelValues.equals(Arrays.asList(labelValues))) {
+                    return sample.value;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,46 @@
+package de.m3y.prometheus.exporter.oozie;
+
+import java.util.List;
+
+import de.m3y.prometheus.exporter.oozie.ScrapeTraceBuffer.ScrapeTrace;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ScrapeTraceBufferTest {
+    @Test
+    public void testGetTraces() {
+        ScrapeTraceBuffer buffer = new ScrapeTraceBuffer(2);
+        ScrapeTrace first = new ScrapeTrace();
+        ScrapeTrace second = new ScrapeTrace();
+        ScrapeTrace third = new ScrapeTrace();
+
+        buffer.add(first);
+        assertEquals(1, buffer.getTraces().size());
+
+        buffer.add(second);
+        buffer.add(third);
+        List<ScrapeTrace> traces = buffer.getTraces();
+        assertEquals(2, traces.size());
+        assertSame(third, traces.get(0));
+        assertSame(second, traces.get(1));
+    }
+
+    @Test
+    public void testTraceOfSeveralRequests() {
+        ScrapeTrace trace = new ScrapeTrace();
+        trace.responseReceived(200);
+        trace.bodyRead(100);
+        final double firstResponseOffset = trace.responseOffset;
+        trace.responseReceived(500);
+        trace.bodyRead(50);
+        trace.responseReceived(200);
+        trace.bodyRead(10);
+
+        assertEquals(3, trace.requests);
+        assertEquals(160, trace.payloadBytes);
+        assertEquals(500, trace.httpStatus);
+        assertEquals(firstResponseOffset, trace.responseOffset, 0.0);
+    }
+}
@@ -0,0 +1,90 @@
+package de.m3y.prometheus.exporter.oozie;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Compares serving via Jetty and lightweight web server, regarding RSS, thread count and latency of /metrics.
+ * <p>
+ * Run once per mode, as each run registers the exporter collectors in this JVM:
+ * <pre>
+ * java -cp target/classes:target/test-classes:&lt;dependency classpath&gt; \
+ *      de.m3y.prometheus.exporter.oozie.WebServerBenchmark [jetty|lightweight] [requests]
+ * </pre>
+ * RSS is read from /proc/self/status and therefore only available on Linux.
+ */
+public class WebServerBenchmark {
+    public static void main(String[] args) throws Exception {
+        final boolean lightweight = args.length > 0 && "lightweight".equals(args[0]);
+        final int requests = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+
+        Config config = new Config();
+        config.oozieApiUrl = "http://localhost:11000/oozie";
+        config.listenerHost = "localhost";
+        config.listenerPort = 7773;
+        config.webLightweight = lightweight;
+
+        final long threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        final String rssBefore = getRss();
+        final WebServer webServer = new WebServer().configure(config);
+        if (lightweight) {
+            webServer.startLightweight();
+        } else {
+            webServer.start();
+        }
+
+        final OkHttpClient client = new OkHttpClient();
+        final Request request = new Request.Builder().url("http://localhost:7773/metrics").build();
+        for (int i = 0; i < requests / 10; i++) { // Warmup
+            execute(client, request);
+        }
+        long[] latencies = new long[requests];
+        for (int i = 0; i < requests; i++) {
+            long start = System.nanoTime();
+            execute(client, request);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+
+        System.out.println("Mode              : " + (lightweight ? "lightweight" : "jetty"));
+        System.out.println("Requests          : " + requests);
+        System.out.println("Latency p50/p99/max [ms] : " + toMillis(latencies[requests / 2]) + " / "
+                + toMillis(latencies[requests * 99 / 100]) + " / " + toMillis(latencies[requests - 1]));
+        System.out.println("Threads before/after    : " + threadsBefore + " / "
+                + ManagementFactory.getThreadMXBean().getThreadCount());
+        System.out.println("RSS before/after        : " + rssBefore + " / " + getRss());
+        System.exit(0);
+    }
+
+    private static void execute(OkHttpClient client, Request request) throws IOException {
+        try (Response response = client.newCall(request).execute()) {
+            response.body().bytes();
+        }
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format("%.3f", nanos / 1e6);
+    }
+
+    private static String getRss() throws IOException {
+        if (!Files.exists(Paths.get("/proc/self/status"))) {
+            return "n/a";
+        }
+        final List<String> lines = Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.UTF_8);
+        for (String line : lines) {
+            if (line.startsWith("VmRSS:")) {
+                return line.substring("VmRSS:".length()).trim();
+            }
+        }
+        return "n/a";
+    }
+}
@@ -56,6 +56,11 @@ public class WebServerIT {
         assertTrue(body.contains("SCM branch"));
         assertTrue(body.contains("SCM version"));
         assertTrue(body.contains("Metrics"));
+
+        // Test scrape traces page
+        response = getResponse(exporterBaseUrl + "/debug/scrapes");
+        assertEquals(200, response.code());
+        assertTrue(response.body().string().contains("Scrapes"));
     }
 
     private Response getResponse(String url) throws IOException {